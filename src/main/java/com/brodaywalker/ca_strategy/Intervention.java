@@ -0,0 +1,109 @@
+package com.brodaywalker.ca_strategy;
+
+/**
+ * <p>
+ * An Intervention is one mask over the grid (a rectangle or a bitmap) together
+ * with the kind of intervention and the days it is in effect. The mask is compiled
+ * once into a packed bitplane: one bit per grid cell, row by row, 64 cells to a
+ * long, using the same index the Strategy uses (i * effectiveDim + j).
+ * </p>
+ */
+class Intervention {
+
+    /**
+     * What an intervention does to the cells under its mask. A shielded cell
+     * cannot become latent; an isolated cell does not count as an infectious
+     * neighbor. A susceptible cell that is immunized is counted as recovered while
+     * the intervention lasts, the way vaccinated cells are removed in SLIR models;
+     * quarantined and blocked cells are only cut off for a while, so they still
+     * count as susceptible.
+     */
+    enum Kind {
+        IMMUNE(true, false, true),       // vaccinated cells cannot be infected
+        QUARANTINE(true, true, false),   // cells are cut off for the day range
+        BLOCKED(true, true, false);      // cells take no part in the outbreak
+
+        final boolean shields, isolates, immunizes;
+
+        Kind(boolean shields, boolean isolates, boolean immunizes) {
+            this.shields = shields;
+            this.isolates = isolates;
+            this.immunizes = immunizes;
+        }
+    }
+
+    private Kind kind;
+    private int firstDay, lastDay;
+    private long[] plane;
+
+    /**
+     * @param kind - What the intervention does
+     * @param firstDay - First day the intervention is in effect
+     * @param lastDay - Last day the intervention is in effect, or -1 for no end
+     * @param effectiveDim - The dimension of the grid including the border
+     */
+    Intervention(Kind kind, int firstDay, int lastDay, int effectiveDim) {
+        this.kind = kind;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay < 0 ? Integer.MAX_VALUE : lastDay;
+        this.plane = newPlane(effectiveDim);
+    }
+
+    /**
+     * Sets the bit of every grid cell in the rectangle, clipped to the grid.
+     * @param top - First row, in grid coordinates
+     * @param left - First column, in grid coordinates
+     * @param bottom - Last row, inclusive
+     * @param right - Last column, inclusive
+     * @param effectiveDim - The dimension of the grid including the border
+     */
+    public void addRectangle(int top, int left, int bottom, int right, int effectiveDim) {
+        for (int i = Math.max(top, 0); i <= Math.min(bottom, effectiveDim - 1); i++) {
+            for (int j = Math.max(left, 0); j <= Math.min(right, effectiveDim - 1); j++) {
+                set(this.plane, i * effectiveDim + j);
+            }
+        }
+    }
+
+    /**
+     * Sets the bit of a single grid cell, ignoring cells off the grid.
+     * @param i - Row, in grid coordinates
+     * @param j - Column, in grid coordinates
+     * @param effectiveDim - The dimension of the grid including the border
+     */
+    public void addCell(int i, int j, int effectiveDim) {
+        if (i >= 0 && i < effectiveDim && j >= 0 && j < effectiveDim) {
+            set(this.plane, i * effectiveDim + j);
+        }
+    }
+
+    public boolean isActive(int day) { return day >= this.firstDay && day <= this.lastDay; }
+    public Kind getKind() { return this.kind; }
+    public long[] getPlane() { return this.plane; }
+
+    /**
+     * Creates an empty bitplane large enough for the grid.
+     * @param effectiveDim - The dimension of the grid including the border
+     * @return long[] - A plane with every bit cleared
+     */
+    static long[] newPlane(int effectiveDim) {
+        return new long[(effectiveDim * effectiveDim + 63) >>> 6];
+    }
+
+    static void set(long[] plane, int index) {
+        plane[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Returns 1 if the cell's bit is clear and 0 if it is set, without branching,
+     * so the result can be added or masked straight into a neighbor count. Java
+     * only uses the low 6 bits of a long shift distance, so index selects the bit
+     * within its word.
+     * @param plane
+     * @param index - The cell's index, i * effectiveDim + j
+     * @return int - 1 for an open cell, 0 for a masked one
+     */
+    static int open(long[] plane, int index) {
+        return (int)(~plane[index >>> 6] >>> index) & 1;
+    }
+}
@@ -0,0 +1,205 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * InterventionSchedule combines every Intervention into bitplanes for the
+ * current day: shielded cells, which cannot become latent, and isolated cells,
+ * which do not count as infectious neighbors. A third plane marks immunized cells
+ * so the Model can count them as recovered. The Strategy reads its planes with
+ * bitwise operations, so the cost per cell is the same no matter how many
+ * interventions are scheduled. The planes are only rebuilt, one word at a time,
+ * on days when an intervention starts or ends.
+ * </p>
+ *
+ * <p>
+ * Schedules can be loaded from a text file, one intervention per line. Rows and
+ * columns are 0-based positions among the usable cells (the border is not
+ * counted), and a last day of -1 means the intervention never ends. Blank lines
+ * and lines starting with # are ignored.
+ * </p>
+ * <pre>
+ * # kind      shape   arguments                  first  last
+ * immune      rect    top left bottom right      0      -1
+ * quarantine  rect    10 10 19 19                5      15
+ * blocked     bitmap  mask.txt top left          0      -1
+ * </pre>
+ * <p>
+ * A bitmap file is read relative to the schedule file; each line is a row of
+ * cells where '1' or '#' marks a cell under the mask.
+ * </p>
+ */
+class InterventionSchedule {
+    private int effectiveDim, compiledDay = -1;
+    private List<Intervention> interventions = new ArrayList<Intervention>();
+    private boolean[] active = new boolean[0];
+    private long[] shielded, isolated, immune;
+
+    /**
+     * Creates an empty schedule; every cell stays open.
+     * @param effectiveDim - The dimension of the grid including the border
+     */
+    InterventionSchedule(int effectiveDim) {
+        this.effectiveDim = effectiveDim;
+        this.shielded = Intervention.newPlane(effectiveDim);
+        this.isolated = Intervention.newPlane(effectiveDim);
+        this.immune = Intervention.newPlane(effectiveDim);
+    }
+
+    public void add(Intervention intervention) {
+        this.interventions.add(intervention);
+        this.active = Arrays.copyOf(this.active, this.interventions.size());
+        // Force the planes to be rebuilt on the next compile
+        this.compiledDay = -1;
+    }
+
+    /**
+     * Brings the shielded, isolated, and immune planes up to date for the given day. If no
+     * intervention started or ended since the last compile, nothing is done.
+     * @param day
+     */
+    public void compile(int day) {
+        boolean changed = this.compiledDay < 0;
+
+        for (int n = 0; n < this.interventions.size(); n++) {
+            boolean isActive = this.interventions.get(n).isActive(day);
+            changed |= isActive != this.active[n];
+            this.active[n] = isActive;
+        }
+
+        this.compiledDay = day;
+        if (!changed) {
+            return;
+        }
+
+        Arrays.fill(this.shielded, 0L);
+        Arrays.fill(this.isolated, 0L);
+        Arrays.fill(this.immune, 0L);
+
+        for (int n = 0; n < this.interventions.size(); n++) {
+            if (!this.active[n]) {
+                continue;
+            }
+
+            Intervention intervention = this.interventions.get(n);
+            long[] plane = intervention.getPlane();
+
+            if (intervention.getKind().shields) {
+                for (int w = 0; w < plane.length; w++) {
+                    this.shielded[w] |= plane[w];
+                }
+            }
+            if (intervention.getKind().isolates) {
+                for (int w = 0; w < plane.length; w++) {
+                    this.isolated[w] |= plane[w];
+                }
+            }
+            if (intervention.getKind().immunizes) {
+                for (int w = 0; w < plane.length; w++) {
+                    this.immune[w] |= plane[w];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a schedule file for a grid with the given border and dimensions.
+     * @param path - Path to the schedule file
+     * @param padSize - Width of the border around the usable cells
+     * @param effectiveDim - The dimension of the grid including the border
+     * @return InterventionSchedule - The loaded schedule
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static InterventionSchedule load(String path, int padSize, int effectiveDim) throws IOException {
+        InterventionSchedule schedule = new InterventionSchedule(effectiveDim);
+        File file = new File(path);
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        String line;
+        int lineNumber = 0;
+
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    schedule.add(parse(line.split("\\s+"), file, padSize, effectiveDim));
+                }
+                catch (RuntimeException re) {
+                    // NumberFormatException, unknown kinds, and missing fields
+                    throw new IOException(path + " line " + lineNumber + ": " + re.getMessage(), re);
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        return schedule;
+    }
+
+    private static Intervention parse(String[] fields, File file, int padSize, int effectiveDim)
+        throws IOException {
+        Intervention.Kind kind = Intervention.Kind.valueOf(fields[0].toUpperCase());
+        String shape = fields[1].toLowerCase();
+        int days = fields.length - 2;
+        Intervention intervention = new Intervention(kind, Integer.parseInt(fields[days]),
+            Integer.parseInt(fields[days + 1]), effectiveDim);
+
+        if (shape.equals("rect") && fields.length == 8) {
+            intervention.addRectangle(Integer.parseInt(fields[2]) + padSize, Integer.parseInt(fields[3]) + padSize,
+                Integer.parseInt(fields[4]) + padSize, Integer.parseInt(fields[5]) + padSize, effectiveDim);
+        }
+        else if (shape.equals("bitmap") && fields.length == 7) {
+            File bitmap = new File(fields[2]);
+            if (!bitmap.isAbsolute()) {
+                bitmap = new File(file.getAbsoluteFile().getParentFile(), fields[2]);
+            }
+            readBitmap(intervention, bitmap, Integer.parseInt(fields[3]) + padSize,
+                Integer.parseInt(fields[4]) + padSize, effectiveDim);
+        }
+        else {
+            throw new IllegalArgumentException("expected 'rect top left bottom right first last' "
+                + "or 'bitmap file top left first last'");
+        }
+
+        return intervention;
+    }
+
+    private static void readBitmap(Intervention intervention, File bitmap, int top, int left, int effectiveDim)
+        throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(bitmap));
+        String row;
+        int i = top;
+
+        try {
+            while ((row = reader.readLine()) != null) {
+                for (int j = 0; j < row.length(); j++) {
+                    if (row.charAt(j) == '1' || row.charAt(j) == '#') {
+                        intervention.addCell(i, left + j, effectiveDim);
+                    }
+                }
+                i++;
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    public long[] getShielded() { return this.shielded; }
+    public long[] getIsolated() { return this.isolated; }
+    public long[] getImmune() { return this.immune; }
+    public int size() { return this.interventions.size(); }
+}
@@ -32,6 +32,7 @@
 package com.brodaywalker.ca_strategy;
 
 import java.io.IOException;
+import java.util.Random;
 import java.util.Scanner;
 
 class Main {
@@ -42,11 +43,43 @@ class Main {
      * @param args[] 
      */
     public static void main(String args[]){
+        // Run as a long-lived local service instead when asked to:
+        // serve [port] [spill directory]
+        if (args.length > 0 && args[0].equals("serve")) {
+            try {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : SimulationService.DEFAULT_PORT;
+                String spillDir = args.length > 2 ? args[2] : null;
+                new SimulationService(port, spillDir).start();
+            }
+            catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+            return;
+        }
+
+        // Compare the mean-field approximation against the exact model:
+        // benchmark [population] [block size] [runs]
+        if (args.length > 0 && args[0].equals("benchmark")) {
+            try {
+                int popSize = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+                int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+                int runs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+                MeanFieldBenchmark.compare(popSize, 1, 1, 1, 0.3, 1, blockSize, runs);
+            }
+            catch (IllegalArgumentException iae) {
+                System.out.println(iae.getMessage());
+            }
+            catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+            return;
+        }
+
         // 1. Show the menu
         // 2. Run the model
         // 3. Check results in output.csv
         try {
-            Model testModel = displayMenu();
+            Simulation testModel = displayMenu();
             testModel.defaultRun();
         }
         catch (IOException ioe) {
@@ -60,16 +93,17 @@ class Main {
     /** 
      * This displays the menu to the user, creating the appropriate Model and Strategy
      * objects as specified in the user input.
-     * @return Model - An instance of the CA Model with a user-selected Strategy
+     * @return Simulation - An instance of the CA Model, or of its mean-field
+     * approximation, with a user-selected Strategy
      * @throws IOException
      */
     // TODO: separate the menu display from Model and Strategy object creation
-    public static Model displayMenu() throws IOException {
+    public static Simulation displayMenu() throws IOException {
         String answer;
-        int popSize, initInfected, initDaysLatent, initDaysInfectious, selectedStrategy; 
+        int popSize, initInfected, initDaysLatent, initDaysInfectious, selectedStrategy, selectedEngine; 
         double initInfectChance;
         boolean pad = true; // Don't give this option yet; further testing is needed.
-        Model customModel = null;
+        Simulation customModel = null;
         Scanner scanner = new Scanner(System.in);
 
         do {
@@ -110,14 +144,37 @@ class Main {
                     + "2. von Neumann neighborhood");
                 selectedStrategy = scanner.nextInt();
 
+                // Select an engine
+                System.out.println("Please select an engine using an integer number:\n"
+                    + "1. Exact cellular automaton\n"
+                    + "2. Mean-field approximation (fast estimate)");
+                selectedEngine = scanner.nextInt();
+
+                // Choose where the initially infectious cells are placed; both engines seed the same way
+                System.out.println("Seeding pattern (random, hotspots:N, row:R, column:C, file:PATH): ");
+                Seeding seeding = Seeding.parse(scanner.next());
+
                 // Create the model
-                // TODO: make a factory method for this
-                switch (selectedStrategy) {
-                    case 1:
-                        customModel = new Model(popSize, initInfected, initDaysLatent, initDaysInfectious, initInfectChance, pad, new Moore());
-                        break;
-                    case 2:
-                        customModel = new Model(popSize, initInfected, initDaysLatent, initDaysInfectious, initInfectChance, pad, new VonNeumann());
+                Strategy strategy = createStrategy(selectedStrategy);
+
+                if (strategy != null && selectedEngine == 2) {
+                    System.out.println("Block size in cells (integer): ");
+                    int blockSize = scanner.nextInt();
+                    customModel = new MeanFieldModel(popSize, initInfected, initDaysLatent, initDaysInfectious, 
+                        initInfectChance, strategy, blockSize, new Random().nextLong(), seeding);
+                }
+                else if (strategy != null) {
+                    Model model = new Model(popSize, initInfected, initDaysLatent, initDaysInfectious, initInfectChance, 
+                        pad, strategy, new Random().nextLong(), seeding);
+
+                    // Optionally apply vaccination, quarantine, or blocked-cell masks
+                    System.out.println("Intervention schedule file (path, or 'none'): ");
+                    String schedule = scanner.next();
+                    if (!schedule.equalsIgnoreCase("none")) {
+                        model.loadInterventions(schedule);
+                    }
+
+                    customModel = model;
                 }
             }
             else if (answer.equals("n")) {
@@ -129,4 +186,21 @@ class Main {
         scanner.close();
         return customModel;
     }
+
+    
+    /** 
+     * Creates the Strategy matching a menu selection.
+     * @param selection - 1 for the Moore neighborhood, 2 for the von Neumann neighborhood
+     * @return Strategy - The selected strategy, or null if the selection is unknown
+     */
+    public static Strategy createStrategy(int selection) {
+        switch (selection) {
+            case 1:
+                return new Moore();
+            case 2:
+                return new VonNeumann();
+            default:
+                return null;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * MeanFieldBenchmark measures how far the MeanFieldModel strays from the exact
+ * cellular Model and how much time it saves. The exact model is stochastic, so
+ * both engines are run several times with consecutive seeds, each pair starting
+ * from the same initial cells, and each engine's per-day counts are averaged
+ * before comparing. Runs that end early hold their final counts for the
+ * remaining days.
+ * </p>
+ *
+ * <p>
+ * Errors are reported as a percentage of the population: the root mean square
+ * error of each compartment over all days, the error in the infectious peak, and
+ * the difference in the day that peak occurs.
+ * </p>
+ */
+class MeanFieldBenchmark {
+
+    /**
+     * Runs both engines with the same parameters and prints the comparison.
+     * @param pop - The target population
+     * @param initialInfectious - Number of cells which start as infectious
+     * @param daysLatent - Number of days a cell stays in the latent phase
+     * @param daysInfectious - Number of days a cell remains in the infectious phase
+     * @param chanceToInfect - How likely an infectious cell is to infect a susceptible cell
+     * @param selectedStrategy - 1 for the Moore neighborhood, 2 for the von Neumann neighborhood
+     * @param blockSize - Block size of the approximation
+     * @param runs - Number of paired runs to average, at least 1
+     * @throws IOException
+     */
+    public static void compare(int pop, int initialInfectious, int daysLatent, int daysInfectious,
+        double chanceToInfect, int selectedStrategy, int blockSize, int runs) throws IOException {
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be at least 1");
+        }
+
+        List<List<double[]>> exactRuns = new ArrayList<List<double[]>>();
+        List<List<double[]>> approxRuns = new ArrayList<List<double[]>>();
+        long exactNanos = 0, approxNanos = 0;
+        MeanFieldModel approx = null;
+
+        // Both engines seed from a Random built on the same seed, so each pair of
+        // runs starts from the same infectious cells
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Model model = new Model(pop, initialInfectious, daysLatent, daysInfectious,
+                chanceToInfect, true, Main.createStrategy(selectedStrategy), run);
+            exactRuns.add(capture(model));
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            approx = new MeanFieldModel(pop, initialInfectious, daysLatent, daysInfectious,
+                chanceToInfect, Main.createStrategy(selectedStrategy), blockSize, run);
+            approxRuns.add(capture(approx));
+            approxNanos += System.nanoTime() - start;
+        }
+        List<double[]> exact = average(exactRuns);
+        List<double[]> estimate = average(approxRuns);
+
+        int days = Math.max(exact.size(), estimate.size());
+        int cells = approx.getDim() * approx.getDim();
+        String[] names = {"Susceptible", "Latent", "Infectious", "Recovered"};
+
+        System.out.println(String.format(Locale.US, "Grid %dx%d, block size %d (%d blocks), %d paired runs averaged",
+            approx.getDim(), approx.getDim(), approx.getBlockSize(), approx.getBlockCount(), runs));
+
+        for (Phase phase : Phase.values()) {
+            double squared = 0.0;
+            for (int day = 0; day < days; day++) {
+                double error = day(exact, day)[phase.ordinal()] - day(estimate, day)[phase.ordinal()];
+                squared += error * error;
+            }
+            System.out.println(String.format(Locale.US, "%-12s RMS error %6.2f%%",
+                names[phase.ordinal()], 100.0 * Math.sqrt(squared / days) / cells));
+        }
+
+        int infectious = Phase.INFECTIOUS.ordinal();
+        int exactPeak = peakDay(exact, infectious), approxPeak = peakDay(estimate, infectious);
+        System.out.println(String.format(Locale.US, "Peak infectious error %6.2f%%, peak day %d vs %d",
+            100.0 * Math.abs(exact.get(exactPeak)[infectious] - estimate.get(approxPeak)[infectious]) / cells,
+            exactPeak, approxPeak));
+        double ratio = (double)exactNanos / Math.max(approxNanos, 1);
+        System.out.println(String.format(Locale.US, "Exact %.1f ms per run, mean-field %.1f ms per run (%.1fx %s)",
+            exactNanos / 1e6 / runs, approxNanos / 1e6 / runs,
+            ratio >= 1.0 ? ratio : 1.0 / ratio, ratio >= 1.0 ? "faster" : "slower"));
+    }
+
+    /**
+     * Runs a simulation and parses each output line into its four SLIR counts.
+     */
+    private static List<double[]> capture(Simulation simulation) throws IOException {
+        StringWriter writer = new StringWriter();
+        List<double[]> series = new ArrayList<double[]>();
+
+        simulation.run(writer);
+
+        for (String line : writer.toString().split("\n")) {
+            String[] fields = line.split(",");
+            double[] counts = new double[Phase.values().length];
+
+            for (int p = 0; p < counts.length; p++) {
+                counts[p] = Double.parseDouble(fields[p].trim());
+            }
+            series.add(counts);
+        }
+
+        return series;
+    }
+
+    /**
+     * Averages several series day by day, holding each series at its final day
+     * once it ends.
+     */
+    private static List<double[]> average(List<List<double[]>> runs) {
+        List<double[]> average = new ArrayList<double[]>();
+        int days = 0;
+
+        for (List<double[]> series : runs) {
+            days = Math.max(days, series.size());
+        }
+
+        for (int day = 0; day < days; day++) {
+            double[] mean = new double[Phase.values().length];
+
+            for (List<double[]> series : runs) {
+                double[] counts = day(series, day);
+                for (int p = 0; p < mean.length; p++) {
+                    mean[p] += counts[p] / runs.size();
+                }
+            }
+            average.add(mean);
+        }
+
+        return average;
+    }
+
+    private static double[] day(List<double[]> series, int day) {
+        return series.get(Math.min(day, series.size() - 1));
+    }
+
+    private static int peakDay(List<double[]> series, int phase) {
+        int peak = 0;
+        for (int day = 1; day < series.size(); day++) {
+            if (series.get(day)[phase] > series.get(peak)[phase]) {
+                peak = day;
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,736 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * <p>
+ * MeanFieldModel is a coarse-grained approximation of the cellular Model for
+ * quick scenario screening. Instead of individual cells, the grid is partitioned
+ * into square blocks and each block holds the expected number of cells in each
+ * SLIR compartment. Latent and infectious cells are further split by days in
+ * phase so that they leave their phase on the same day the cellular model would
+ * move them.
+ * </p>
+ *
+ * <p>
+ * Blocks are coupled through the Strategy's neighborhood. A susceptible cell on
+ * the edge of an outbreak has, on average, frontNeighbors of its neighbors on the
+ * infected side, and each of them is infectious with the infectious share of the
+ * recently infected cells in its own block and the blocks its neighbor offsets
+ * reach. The cell escapes only if every such neighbor fails its roll against
+ * chanceToInfect, matching the per-neighbor rolls the Strategy makes. With a
+ * block size of 1 every block is a single cell and its neighbors are exactly
+ * the cells the Strategy would look at.
+ * </p>
+ *
+ * <p>
+ * A block is not treated as well mixed. In the cellular model an outbreak grows
+ * as a front moving outward from the seeds, so only the cells the front has
+ * reached can be infected. On top of the block model, each block therefore
+ * limits its infections to the cells the front has reached. The front moves at
+ * the speed of the linearized model, which follows from the neighbor offsets,
+ * chanceToInfect and the phase lengths alone, and how far it must travel to
+ * reach a block comes from a breadth-first search over the blocks starting at
+ * the blocks that hold seeds. Inside a seeded block the reached cells grow as a
+ * ball around each seed, and elsewhere they sweep across the block. Larger
+ * blocks make both the reach and the coupling coarser, trading accuracy for
+ * speed.
+ * </p>
+ *
+ * <p>
+ * Setting up costs time in proportion to the number of seeds and the number of
+ * blocks, apart from a bit per cell while seeding, and each day only the blocks
+ * the front is crossing are visited. The spatial columns are computed from
+ * blocks rather than cells: clusters are groups of touched blocks connected
+ * through the neighborhood, the largest cluster is the number of cells ever
+ * infected in the biggest group, and the front radius is estimated from the
+ * distance between each touched block and the seeded block it was reached from.
+ * </p>
+ */
+class MeanFieldModel implements Simulation, Seeding.Target {
+    // Radius of the ball used to measure how the neighborhood grows
+    private static final int BALL_RADIUS = 16;
+    // A finished block with fewer latent and infectious cells than this is retired
+    private static final double NEGLIGIBLE = 1e-6;
+    private static final int UNREACHED = -1;
+
+    private int dim, blockSize, blocksPerSide, blockCount, daysLatent, daysInfectious, day;
+    private double chanceToInfect;
+    private int[][] neighborhood;
+    // Cells in each block; blocks on the far edges may be smaller
+    private int[] blockRows, blockCols;
+    private double[] susceptible, recovered;
+    // latent[d][block] holds the cells that have been latent for d days, and
+    // infectious[d][block] the cells that have been infectious for d days
+    private double[][] latent, infectious;
+    // Totals over the days in phase, for the blocks being visited
+    private double[] latentCells, infectiousCells;
+    private double totalRecovered;
+    // Cells already seeded, one bit per cell; only needed while seeding
+    private long[] seeded;
+    private int[] seedCount;
+    // Sums of the seeds' rows and columns in each block, for their centroid
+    private long[] seedRows, seedCols;
+
+    // Front speed in neighborhood steps per day, cells in a ball of radius r per
+    // (r + 1/2)^2, and the average number of a front cell's neighbors behind it
+    private double speed, ballArea, frontNeighbors;
+    // Steps to each cell of a small grid from its middle cell
+    private int[] ballSteps;
+    // Block steps from the nearest seeded block, and that block
+    private int[] blockDistance, origin;
+    // Steps from the seeds of a block's origin to its nearest and farthest cells
+    private double[] entry, exit;
+    // Blocks in the order the front reaches them, the next one to reach, and
+    // the blocks being visited today
+    private int[] byDistance, active;
+    private int nextToReach, activeCount;
+    private double[] newLatent;
+
+    // Union-find over the blocks the outbreak has touched, with the cells ever
+    // infected in each cluster kept at its root
+    private int[] parent;
+    private double[] clusterCells;
+    private int clusterCount;
+    private double largestCluster, frontRadius;
+
+    /**
+     * @param pop - The target population
+     * @param initialInfectious - Number of cells which start as infectious
+     * @param daysLatent - Number of days a cell stays in the latent phase
+     * @param daysInfectious - Number of days a cell remains in the infectious phase
+     * @param chanceToInfect - How likely an infectious cell is to infect a susceptible cell
+     * @param strat - The strategy whose neighborhood couples the blocks
+     * @param blockSize - Width and height of each block, in cells
+     * @param seed - Seed used to place the initial infectious cells
+     */
+    MeanFieldModel(int pop, int initialInfectious, int daysLatent, int daysInfectious,
+        double chanceToInfect, Strategy strat, int blockSize, long seed) {
+        this(pop, initialInfectious, daysLatent, daysInfectious, chanceToInfect, strat,
+            blockSize, seed, Seeding.random());
+    }
+
+    /**
+     * @param pop - The target population
+     * @param initialInfectious - Number of cells which start as infectious
+     * @param daysLatent - Number of days a cell stays in the latent phase
+     * @param daysInfectious - Number of days a cell remains in the infectious phase
+     * @param chanceToInfect - How likely an infectious cell is to infect a susceptible cell
+     * @param strat - The strategy whose neighborhood couples the blocks
+     * @param blockSize - Width and height of each block, in cells
+     * @param seed - Seed used to place the initial infectious cells
+     * @param seeding - Pattern used to place the initial infectious cells
+     */
+    MeanFieldModel(int pop, int initialInfectious, int daysLatent, int daysInfectious,
+        double chanceToInfect, Strategy strat, int blockSize, long seed, Seeding seeding) {
+        this.dim = (int)Math.sqrt(pop);
+        this.blockSize = Math.max(1, Math.min(blockSize, this.dim));
+        this.blocksPerSide = (this.dim + this.blockSize - 1) / this.blockSize;
+        this.blockCount = this.blocksPerSide * this.blocksPerSide;
+        this.daysLatent = daysLatent;
+        this.daysInfectious = daysInfectious;
+        this.chanceToInfect = chanceToInfect;
+        this.neighborhood = strat.getNeighborhood();
+
+        buildBlocks();
+        // Seed individual cells the same way the cellular model does, then
+        // keep only the per-block totals
+        this.seeded = Intervention.newPlane(this.dim);
+        seeding.apply(this, initialInfectious, new Random(seed));
+        this.seeded = null;
+
+        measureNeighborhood();
+        this.speed = frontSpeed();
+        buildDistances();
+
+        for (int block = 0; block < this.blockCount; block++) {
+            if (this.seedCount[block] > 0) {
+                touch(block, 0.0);
+            }
+        }
+    }
+
+    /**
+     * Sizes every block and fills it with susceptible cells.
+     */
+    private void buildBlocks() {
+        // The grid is square, so rows and columns are split the same way
+        this.blockRows = new int[this.blocksPerSide];
+        this.blockCols = this.blockRows;
+        this.susceptible = new double[this.blockCount];
+        this.recovered = new double[this.blockCount];
+        this.latent = new double[this.daysLatent + 1][this.blockCount];
+        this.infectious = new double[this.daysInfectious + 1][this.blockCount];
+        this.latentCells = new double[this.blockCount];
+        this.infectiousCells = new double[this.blockCount];
+        this.newLatent = new double[this.blockCount];
+        this.seedCount = new int[this.blockCount];
+        this.seedRows = new long[this.blockCount];
+        this.seedCols = new long[this.blockCount];
+        this.parent = new int[this.blockCount];
+        this.clusterCells = new double[this.blockCount];
+
+        Arrays.fill(this.parent, UNREACHED);
+
+        for (int b = 0; b < this.blocksPerSide; b++) {
+            this.blockRows[b] = Math.min(this.blockSize, this.dim - b * this.blockSize);
+        }
+
+        for (int bi = 0; bi < this.blocksPerSide; bi++) {
+            for (int bj = 0; bj < this.blocksPerSide; bj++) {
+                this.susceptible[bi * this.blocksPerSide + bj] = this.blockRows[bi] * this.blockCols[bj];
+            }
+        }
+    }
+
+    /**
+     * Reports whether a cell has been seeded. Only used while seeding.
+     * @param row - Row among the usable cells
+     * @param col - Column among the usable cells
+     * @return boolean
+     */
+    public boolean isSeeded(int row, int col) {
+        return Intervention.open(this.seeded, row * this.dim + col) == 0;
+    }
+
+    /**
+     * Moves one cell of the block holding (row, col) from susceptible to infectious.
+     * @param row - Row among the usable cells
+     * @param col - Column among the usable cells
+     */
+    public void seed(int row, int col) {
+        if (!isSeeded(row, col)) {
+            int block = (row / this.blockSize) * this.blocksPerSide + col / this.blockSize;
+
+            Intervention.set(this.seeded, row * this.dim + col);
+            this.seedCount[block]++;
+            this.seedRows[block] += row;
+            this.seedCols[block] += col;
+            this.susceptible[block]--;
+            this.infectious[0][block]++;
+            this.infectiousCells[block]++;
+        }
+    }
+
+    /**
+     * Measures three properties of the neighborhood: how many steps it takes to
+     * reach each cell of a small grid from its middle, how many cells lie within
+     * r steps of a cell, and how many of a cell's neighbors lie behind a straight
+     * front, averaged over the axis and diagonal directions the front can face.
+     */
+    private void measureNeighborhood() {
+        int width = 2 * BALL_RADIUS + 1;
+        int[] distance = new int[width * width];
+        int[] queue = new int[width * width];
+        int head = 0, tail = 0, inBall = 0;
+
+        this.ballSteps = distance;
+
+        Arrays.fill(distance, UNREACHED);
+        distance[BALL_RADIUS * width + BALL_RADIUS] = 0;
+        queue[tail++] = BALL_RADIUS * width + BALL_RADIUS;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / width, col = cell % width;
+
+            if (distance[cell] <= BALL_RADIUS) {
+                inBall++;
+            }
+            for (int[] offset : this.neighborhood) {
+                int r = row + offset[0], c = col + offset[1];
+
+                if (r >= 0 && r < width && c >= 0 && c < width && distance[r * width + c] == UNREACHED) {
+                    distance[r * width + c] = distance[cell] + 1;
+                    queue[tail++] = r * width + c;
+                }
+            }
+        }
+        this.ballArea = inBall / ((BALL_RADIUS + 0.5) * (BALL_RADIUS + 0.5));
+
+        int[][] directions = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        int behind = 0;
+        for (int[] direction : directions) {
+            for (int[] offset : this.neighborhood) {
+                if (offset[0] * direction[0] + offset[1] * direction[1] > 0) {
+                    behind++;
+                }
+            }
+        }
+        this.frontNeighbors = (double)behind / directions.length;
+    }
+
+    /**
+     * Returns the speed of the front in the linearized model, in neighborhood
+     * steps per day. Far ahead of the front nearly every cell is susceptible, so
+     * the expected number of cells that turn latent on day t at position x is
+     * chanceToInfect times the cells that turned latent within reach of x early
+     * enough to be infectious on day t - 1. A front of the form exp(-l (x - v t))
+     * solves this when
+     * <pre>
+     *   1 = chanceToInfect * sum over offsets of exp(-l * dr) * sum over k of exp(-l * v * k)
+     * </pre>
+     * with k running over the days after infection a cell can pass it on, and the
+     * front moves at the smallest such v over all l. A cell cannot pass infection
+     * on sooner than daysLatent + 2 days after it was infected, which caps the speed.
+     * @return double - Steps per day, or 0 if the outbreak cannot grow
+     */
+    private double frontSpeed() {
+        double fastest = 1.0 / (this.daysLatent + 2);
+        double slowest = fastest;
+
+        if (this.chanceToInfect * this.neighborhood.length * (this.daysInfectious + 1) <= 1.0) {
+            return 0.0;
+        }
+
+        for (double l = 0.02; l <= 30.0; l += 0.02) {
+            double reach = 0.0;
+            for (int[] offset : this.neighborhood) {
+                reach += Math.exp(-l * offset[0]);
+            }
+
+            // Generations shrink as v grows, so bisect for the v that balances them
+            double low = 0.0, high = fastest;
+            if (growth(l, high, reach) >= 1.0) {
+                continue;
+            }
+            for (int step = 0; step < 50; step++) {
+                double mid = 0.5 * (low + high);
+                if (growth(l, mid, reach) >= 1.0) {
+                    low = mid;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            slowest = Math.min(slowest, high);
+        }
+
+        return slowest;
+    }
+
+    /**
+     * @return double - Offspring per cell in the linearized model for a front of slope l moving at v
+     */
+    private double growth(double l, double v, double reach) {
+        double generations = 0.0;
+        for (int k = this.daysLatent + 2; k <= this.daysLatent + this.daysInfectious + 2; k++) {
+            generations += Math.exp(-l * v * k);
+        }
+        return this.chanceToInfect * reach * generations;
+    }
+
+    /**
+     * Multi-source breadth-first search over the blocks, stepping by the
+     * neighborhood offsets, from every block that holds a seed. This gives every
+     * block its Chebyshev (Moore) or Manhattan (von Neumann) distance in blocks
+     * from the nearest seeded block. The blocks are then listed in the order the
+     * front reaches them.
+     */
+    private void buildDistances() {
+        int[] queue = new int[this.blockCount];
+        int head = 0, tail = 0;
+
+        this.blockDistance = new int[this.blockCount];
+        this.origin = new int[this.blockCount];
+        this.active = new int[this.blockCount];
+        Arrays.fill(this.blockDistance, UNREACHED);
+
+        for (int block = 0; block < this.blockCount; block++) {
+            if (this.seedCount[block] > 0) {
+                this.blockDistance[block] = 0;
+                this.origin[block] = block;
+                queue[tail++] = block;
+            }
+        }
+
+        while (head < tail) {
+            int block = queue[head++];
+            int bi = block / this.blocksPerSide, bj = block % this.blocksPerSide;
+
+            for (int[] offset : this.neighborhood) {
+                int ni = bi + offset[0], nj = bj + offset[1];
+
+                if (ni >= 0 && ni < this.blocksPerSide && nj >= 0 && nj < this.blocksPerSide
+                    && this.blockDistance[ni * this.blocksPerSide + nj] == UNREACHED) {
+                    this.blockDistance[ni * this.blocksPerSide + nj] = this.blockDistance[block] + 1;
+                    this.origin[ni * this.blocksPerSide + nj] = this.origin[block];
+                    queue[tail++] = ni * this.blocksPerSide + nj;
+                }
+            }
+        }
+
+        this.entry = new double[this.blockCount];
+        this.exit = new double[this.blockCount];
+        for (int n = 0; n < tail; n++) {
+            measureCrossing(queue[n]);
+        }
+
+        // Sort the blocks by the distance at which the front enters them, in
+        // 1/1024ths of a step and packed with the block number into one long.
+        // The seeded blocks come first and are visited from the start.
+        long[] order = new long[tail];
+        for (int n = 0; n < tail; n++) {
+            order[n] = (long)(this.entry[queue[n]] * 1024) << 32 | queue[n];
+        }
+        Arrays.sort(order);
+
+        this.byDistance = new int[tail];
+        for (int n = 0; n < tail; n++) {
+            this.byDistance[n] = (int)order[n];
+        }
+        while (this.nextToReach < tail && this.blockDistance[this.byDistance[this.nextToReach]] == 0) {
+            this.active[this.activeCount++] = this.byDistance[this.nextToReach++];
+        }
+    }
+
+    /**
+     * Finds how far the front travels from the seeds of a block's origin before
+     * it enters the block and before it has crossed it, measured from the seeds'
+     * centroid to the block's nearest and farthest cells.
+     */
+    private void measureCrossing(int block) {
+        int from = this.origin[block];
+        double row = (double)this.seedRows[from] / this.seedCount[from];
+        double col = (double)this.seedCols[from] / this.seedCount[from];
+        int top = (block / this.blocksPerSide) * this.blockSize;
+        int left = (block % this.blocksPerSide) * this.blockSize;
+        int bottom = top + this.blockRows[block / this.blocksPerSide] - 1;
+        int right = left + this.blockCols[block % this.blocksPerSide] - 1;
+
+        this.entry[block] = steps(Math.max(0.0, Math.max(top - row, row - bottom)),
+                                  Math.max(0.0, Math.max(left - col, col - right)));
+        this.exit[block] = steps(Math.max(Math.abs(row - top), Math.abs(row - bottom)),
+                                 Math.max(Math.abs(col - left), Math.abs(col - right)));
+    }
+
+    /**
+     * Returns the number of neighborhood steps between two cells that are the
+     * given rows and columns apart. The steps to a cell grow in proportion to
+     * its distance in any fixed direction, so the displacement is scaled onto
+     * the small grid measured in measureNeighborhood and the steps scaled back.
+     */
+    private double steps(double rows, double cols) {
+        double longest = Math.max(rows, cols);
+
+        if (longest == 0.0) {
+            return 0.0;
+        }
+
+        int width = 2 * BALL_RADIUS + 1;
+        int r = BALL_RADIUS + (int)Math.round(rows / longest * BALL_RADIUS);
+        int c = BALL_RADIUS + (int)Math.round(cols / longest * BALL_RADIUS);
+        return this.ballSteps[r * width + c] * longest / BALL_RADIUS;
+    }
+
+    /**
+     * @return double - Distance the front travels before any cell of the block can be infected
+     */
+    private double entryDistance(int block) {
+        return Math.max(0.0, this.entry[block] - 1.0);
+    }
+
+    /**
+     * Returns the cells of a block the front has reached at the given distance
+     * from the seeds. Cells within one step of a seed can be infected on the
+     * first day, so the front reaches r + 1 steps once it has travelled r. In a
+     * seeded block the reached cells are a ball of that radius around each seed,
+     * overlapping at random; any other block is swept from its nearest cell to
+     * its farthest.
+     */
+    private double reachedCells(int block, double distance) {
+        double cells = this.blockRows[block / this.blocksPerSide] * this.blockCols[block % this.blocksPerSide];
+
+        if (this.blockDistance[block] == 0) {
+            double ball = this.ballArea * (distance + 1.5) * (distance + 1.5);
+            return cells * (1.0 - Math.pow(1.0 - Math.min(1.0, ball / cells), this.seedCount[block]));
+        }
+
+        double width = this.exit[block] - this.entry[block] + 1.0;
+        return cells * Math.max(0.0, Math.min(1.0, (distance - entryDistance(block)) / width));
+    }
+
+    /**
+     * Returns the share of infectious cells among the latent and infectious cells
+     * of a block and the blocks its neighbor offsets reach. These are the cells
+     * just behind the front, which the block's exposed cells border.
+     */
+    private double frontDensity(int block) {
+        int bi = block / this.blocksPerSide, bj = block % this.blocksPerSide;
+        double infected = this.infectiousCells[block];
+        double behind = this.latentCells[block] + this.infectiousCells[block];
+
+        for (int[] offset : this.neighborhood) {
+            int ni = bi + offset[0], nj = bj + offset[1];
+
+            if (ni >= 0 && ni < this.blocksPerSide && nj >= 0 && nj < this.blocksPerSide) {
+                infected += this.infectiousCells[ni * this.blocksPerSide + nj];
+                behind += this.latentCells[ni * this.blocksPerSide + nj]
+                    + this.infectiousCells[ni * this.blocksPerSide + nj];
+            }
+        }
+
+        return behind > 0.0 ? infected / behind : 0.0;
+    }
+
+    /**
+     * Advances the model by one day. Infection uses the previous day's
+     * compartments, like the copyGrid in the cellular model. Blocks start being
+     * visited when the front reaches them and stop once the front has crossed
+     * them and their last latent and infectious cells have recovered.
+     */
+    public void simulateDay() {
+        double distance = this.speed * (this.day + 1);
+        int stillActive = 0;
+
+        while (this.nextToReach < this.byDistance.length
+            && entryDistance(this.byDistance[this.nextToReach]) <= distance) {
+            this.active[this.activeCount++] = this.byDistance[this.nextToReach++];
+        }
+
+        // Susceptible cells the front has reached are exposed to the infectious
+        // cells behind it; the rest of the block cannot be infected yet
+        for (int n = 0; n < this.activeCount; n++) {
+            int block = this.active[n];
+            double cells = this.blockRows[block / this.blocksPerSide] * this.blockCols[block % this.blocksPerSide];
+            double exposed = Math.max(0.0, reachedCells(block, distance) - (cells - this.susceptible[block]));
+            double escape = Math.pow(1.0 - this.chanceToInfect * frontDensity(block), this.frontNeighbors);
+
+            this.newLatent[block] = exposed * (1.0 - escape);
+        }
+
+        for (int n = 0; n < this.activeCount; n++) {
+            int block = this.active[n];
+            double[] oldest = this.infectious[this.daysInfectious];
+
+            this.susceptible[block] -= this.newLatent[block];
+            touch(block, this.newLatent[block]);
+
+            // Infectious cells past their last day recover, the rest age by a day
+            this.recovered[block] += oldest[block];
+            this.totalRecovered += oldest[block];
+            this.latentCells[block] += this.newLatent[block] - this.latent[this.daysLatent][block];
+            this.infectiousCells[block] += this.latent[this.daysLatent][block] - oldest[block];
+        }
+
+        // Shift the cohorts by swapping arrays; the oldest infectious array is reused
+        // for today's latent cells, and it only holds values for the active blocks
+        double[] reused = this.infectious[this.daysInfectious];
+        System.arraycopy(this.infectious, 0, this.infectious, 1, this.daysInfectious);
+        this.infectious[0] = this.latent[this.daysLatent];
+        System.arraycopy(this.latent, 0, this.latent, 1, this.daysLatent);
+        this.latent[0] = reused;
+
+        for (int n = 0; n < this.activeCount; n++) {
+            int block = this.active[n];
+            double cells = this.blockRows[block / this.blocksPerSide] * this.blockCols[block % this.blocksPerSide];
+
+            reused[block] = this.newLatent[block];
+            if (this.parent[block] != UNREACHED) {
+                updateRadius(block, reachedCells(block, distance) / cells);
+            }
+
+            if (reachedCells(block, distance) < cells
+                || this.latentCells[block] + this.infectiousCells[block] >= NEGLIGIBLE) {
+                this.active[stillActive++] = block;
+            }
+            else {
+                retire(block);
+            }
+        }
+        this.activeCount = stillActive;
+
+        this.day++;
+    }
+
+    /**
+     * Moves the negligible latent and infectious cells left in a block the front
+     * has crossed to recovered, so that blocks that are no longer visited hold
+     * no cohorts.
+     */
+    private void retire(int block) {
+        for (double[] cohort : this.latent) {
+            this.recovered[block] += cohort[block];
+            this.totalRecovered += cohort[block];
+            cohort[block] = 0.0;
+        }
+        for (double[] cohort : this.infectious) {
+            this.recovered[block] += cohort[block];
+            this.totalRecovered += cohort[block];
+            cohort[block] = 0.0;
+        }
+        this.latentCells[block] = 0.0;
+        this.infectiousCells[block] = 0.0;
+    }
+
+    /**
+     * Extends the front radius to a touched block. In a seeded block it is the
+     * reach of one seed's ball of infected cells, out to its corners. Elsewhere it
+     * is the distance from the origin's seed centroid to the block's center, moved
+     * from the near side of the block to the far side as the front crosses it.
+     */
+    private void updateRadius(int block, double reachedShare) {
+        int from = this.origin[block];
+        double radius;
+
+        if (this.blockDistance[block] == 0) {
+            double perSeed = everInfected(block) / this.seedCount[block];
+            radius = Math.max(0.0, Math.sqrt(perSeed / this.ballArea) - 0.5) * cornerReach();
+        }
+        else {
+            int bi = block / this.blocksPerSide, bj = block % this.blocksPerSide;
+            double row = bi * this.blockSize + (this.blockRows[bi] - 1) / 2.0;
+            double col = bj * this.blockSize + (this.blockCols[bj] - 1) / 2.0;
+            double center = Math.hypot(row - (double)this.seedRows[from] / this.seedCount[from],
+                                       col - (double)this.seedCols[from] / this.seedCount[from]);
+            radius = Math.max(0.0, center + (reachedShare - 0.5) * (this.blockSize - 1));
+        }
+
+        this.frontRadius = Math.max(this.frontRadius, radius);
+    }
+
+    /**
+     * @return double - The longest neighbor offset, which is how far one step reaches at most
+     */
+    private double cornerReach() {
+        double longest = 0.0;
+        for (int[] offset : this.neighborhood) {
+            longest = Math.max(longest, Math.hypot(offset[0], offset[1]));
+        }
+        return longest;
+    }
+
+    /**
+     * Adds newly infected cells to a block's cluster. A block joins the outbreak
+     * once at least half a cell of it has been infected, and is then joined with
+     * the touched blocks around it, the same way SpatialAnalytics joins cells.
+     * @param block
+     * @param infected - Cells of the block infected today
+     */
+    private void touch(int block, double infected) {
+        if (this.parent[block] != UNREACHED) {
+            int root = find(block);
+            this.clusterCells[root] += infected;
+            this.largestCluster = Math.max(this.largestCluster, this.clusterCells[root]);
+            return;
+        }
+        if (everInfected(block) < 0.5) {
+            return;
+        }
+
+        int bi = block / this.blocksPerSide, bj = block % this.blocksPerSide;
+
+        this.parent[block] = block;
+        this.clusterCells[block] = everInfected(block);
+        this.clusterCount++;
+
+        for (int[] offset : this.neighborhood) {
+            int ni = bi + offset[0], nj = bj + offset[1];
+
+            if (ni >= 0 && ni < this.blocksPerSide && nj >= 0 && nj < this.blocksPerSide
+                && this.parent[ni * this.blocksPerSide + nj] != UNREACHED) {
+                union(block, ni * this.blocksPerSide + nj);
+            }
+        }
+        this.largestCluster = Math.max(this.largestCluster, this.clusterCells[find(block)]);
+    }
+
+    private double everInfected(int block) {
+        return this.blockRows[block / this.blocksPerSide] * this.blockCols[block % this.blocksPerSide]
+            - this.susceptible[block];
+    }
+
+    private int find(int block) {
+        while (this.parent[block] != block) {
+            this.parent[block] = this.parent[this.parent[block]];
+            block = this.parent[block];
+        }
+        return block;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+
+        if (rootA != rootB) {
+            this.parent[rootB] = rootA;
+            this.clusterCells[rootA] += this.clusterCells[rootB];
+            this.clusterCount--;
+        }
+    }
+
+    /**
+     * @return double - Latent and infectious cells in the blocks being visited; no other block holds any
+     */
+    private double activeInfected() {
+        double sum = 0.0;
+        for (int n = 0; n < this.activeCount; n++) {
+            sum += this.latentCells[this.active[n]] + this.infectiousCells[this.active[n]];
+        }
+        return sum;
+    }
+
+    /**
+     * Writes the rounded number of cells in each phase of the SLIR model followed
+     * by the block-level spatial statistics, in the same columns as the cellular
+     * model. The susceptible count absorbs the rounding so the four SLIR counts
+     * sum to the grid size.
+     * @param writer
+     * @throws IOException
+     */
+    private void writeStatistics(Writer writer) throws IOException {
+        double latentSum = 0.0, infectiousSum = 0.0;
+
+        for (int n = 0; n < this.activeCount; n++) {
+            latentSum += this.latentCells[this.active[n]];
+            infectiousSum += this.infectiousCells[this.active[n]];
+        }
+
+        long countLatent = Math.round(latentSum);
+        long countInfectious = Math.round(infectiousSum);
+        long countRecovered = Math.round(this.totalRecovered);
+        long countSusceptible = (long)this.dim * this.dim - countLatent - countInfectious - countRecovered;
+
+        writer.append(countSusceptible + ", " + countLatent + ", " +
+                      countInfectious + ", " + countRecovered + ", " +
+                      this.clusterCount + ", " + Math.round(this.largestCluster) + ", " +
+                      String.format(Locale.US, "%.2f", this.frontRadius) + '\n');
+    }
+
+    /**
+     * Runs the approximation until fewer than half a cell remains latent or
+     * infectious, writing each day's statistics to the given writer. The writer
+     * is not closed.
+     * @param writer
+     * @throws IOException
+     */
+    public void run(Writer writer) throws IOException {
+        writeStatistics(writer);
+
+        while (activeInfected() >= 0.5) {
+            simulateDay();
+            writeStatistics(writer);
+        }
+    }
+
+    /**
+     * Runs the approximation, writing each day's statistics to output.csv.
+     * @throws IOException
+     */
+    public void defaultRun() throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter("output.csv"));
+        run(writer);
+        writer.close();
+    }
+
+    public int getDim() { return this.dim; }
+    public int getBlockSize() { return this.blockSize; }
+    public int getBlockCount() { return this.blockCount; }
+    public int getDay() { return this.day; }
+    public double getFrontSpeed() { return this.speed; }
+}
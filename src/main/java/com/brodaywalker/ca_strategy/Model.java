@@ -2,11 +2,13 @@ package com.brodaywalker.ca_strategy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 import java.io.IOException;
 import java.lang.Math;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.Writer;
 
 /**
  * <p>
@@ -21,13 +23,19 @@ import java.io.FileWriter;
  * Strategy interface. 
  * </p>
  */
-class Model {
+class Model implements Simulation, Seeding.Target {
     private int padSize, dim, effectiveDim, initialInfectious, pop, daysLatent, 
                 daysInfectious, countSusceptible, countLatent, countInfectious, 
                 countRecovered;
+    private long seed;
     private double chanceToInfect;
+    private Random rand;
     private List<List<Model.Cell>> grid, copyGrid;
     private Strategy strategy;
+    private SpatialAnalytics analytics;
+    private InterventionSchedule interventions;
+    private Seeding seeding;
+    private int day;
 
     class Cell {
         Phase phase; 
@@ -70,8 +78,14 @@ class Model {
         //
         // The default strategy surveys the Moore neighborhood
         this.strategy = new Moore(this.daysLatent, this.daysInfectious, this.chanceToInfect);
+        this.seed = new Random().nextLong();
+        this.rand = new Random(this.seed);
+        this.strategy.setRandom(this.rand);
+        this.seeding = Seeding.random();
 
         buildGrid();
+        this.analytics = new SpatialAnalytics(this.effectiveDim, this.strategy.getNeighborhood());
+        setInterventions(new InterventionSchedule(this.effectiveDim));
         setInitialInfectious();
         copyGridDeep();
         updateStatistics();
@@ -89,6 +103,44 @@ class Model {
      */
     Model(int pop, int initialInfectious, int daysLatent, int daysInfectious, 
         double chanceToInfect, boolean pad, Strategy strat) {
+        this(pop, initialInfectious, daysLatent, daysInfectious, chanceToInfect, pad, strat,
+            new Random().nextLong());
+    }
+
+    /**
+     * This optional constructor also fixes the seed of the random number generator
+     * shared by the Model and its Strategy. Two models built with the same parameters
+     * and seed produce the same results day for day.
+     * @param pop - The target population
+     * @param initialInfectious - Number of cells which start as infectious
+     * @param daysLatent - Number of days a cell stays in the latent phase
+     * @param daysInfectious - Number of days a cell remains in the infectious phase
+     * @param chanceToInfect - How likely an infectious cell is to infect a susceptible cell
+     * @param pad - Surround the 2D grid with a border of susceptible cells?
+     * @param strat - The logic flavor to be applied
+     * @param seed - Seed for the random number generator
+     */
+    Model(int pop, int initialInfectious, int daysLatent, int daysInfectious, 
+        double chanceToInfect, boolean pad, Strategy strat, long seed) {
+        this(pop, initialInfectious, daysLatent, daysInfectious, chanceToInfect, pad, strat,
+            seed, Seeding.random());
+    }
+
+    /**
+     * This optional constructor also chooses where the initially infectious cells
+     * are placed, such as hotspots, a row or column front, or cells from a file.
+     * @param pop - The target population
+     * @param initialInfectious - Number of cells which start as infectious
+     * @param daysLatent - Number of days a cell stays in the latent phase
+     * @param daysInfectious - Number of days a cell remains in the infectious phase
+     * @param chanceToInfect - How likely an infectious cell is to infect a susceptible cell
+     * @param pad - Surround the 2D grid with a border of susceptible cells?
+     * @param strat - The logic flavor to be applied
+     * @param seed - Seed for the random number generator
+     * @param seeding - Pattern used to place the initially infectious cells
+     */
+    Model(int pop, int initialInfectious, int daysLatent, int daysInfectious, 
+        double chanceToInfect, boolean pad, Strategy strat, long seed, Seeding seeding) {
         // Padding will probably always be used, but give the option
         // to not use it 
         if (pad) {
@@ -115,8 +167,14 @@ class Model {
         this.strategy.setDaysLatent(this.daysLatent);
         this.strategy.setDaysInfectious(this.daysInfectious);
         this.strategy.setChanceInfected(this.chanceToInfect);
+        this.seed = seed;
+        this.rand = new Random(seed);
+        this.strategy.setRandom(this.rand);
+        this.seeding = seeding;
 
         buildGrid();
+        this.analytics = new SpatialAnalytics(this.effectiveDim, this.strategy.getNeighborhood());
+        setInterventions(new InterventionSchedule(this.effectiveDim));
         setInitialInfectious();
         copyGridDeep();
         updateStatistics();
@@ -155,38 +213,41 @@ class Model {
 
     /**
      * Creates this.initialInfectious infected individual cells before the
-     * SLIR model begins running. Cells are selected at random.
+     * SLIR model begins running. Which cells are chosen is up to the Seeding
+     * pattern; by default they are selected at random using the model's seed.
      */
     private void setInitialInfectious() {
-        Random rand = new Random(); // random number generator
-        int j, k; // used for random index
-
-        // Make sure the initial count of infectious cells does not exceed
-        // the size of the grid
-        if (this.initialInfectious <= this.pop) {
-            for(int i = 0; i < this.initialInfectious; i++) {
-                // Choose a random cell object in the grid
-                // If this cell is already infectious, continue to roll random
-                // numbers until a 
-                do {
-                    j = rand.nextInt(this.effectiveDim - this.padSize - this.padSize) + 1;
-                    k = rand.nextInt(this.effectiveDim - this.padSize - this.padSize) + 1;
-    
-                } while(this.grid.get(j).get(k).getPhase() != Phase.SUSCEPTIBLE);
-                
-                // Set the cell to infectious
-                this.grid.get(j).get(k).setPhase(Phase.INFECTIOUS);
-            }
-        }
-        // If the user input for the initial count of infectious cells exceeds
-        // the size of the grid, set the default amount of infectious cells,
-        // which is 1
-        else {
-            j = rand.nextInt(this.effectiveDim - this.padSize - this.padSize) + 1;
-            k = rand.nextInt(this.effectiveDim - this.padSize - this.padSize) + 1;
+        this.seeding.apply(this, this.initialInfectious, this.rand);
+    }
 
-            // Set the cell to infectious
-            this.grid.get(j).get(k).setPhase(Phase.INFECTIOUS);
+    /**
+     * Reports whether a usable cell has already been seeded.
+     * @param row - Row among the usable cells
+     * @param col - Column among the usable cells
+     * @return boolean
+     */
+    public boolean isSeeded(int row, int col) {
+        return this.grid.get(row + this.padSize).get(col + this.padSize).phase == Phase.INFECTIOUS;
+    }
+
+    /**
+     * @param row - Row among the usable cells
+     * @param col - Column among the usable cells
+     * @return Phase - The cell's phase at the end of the current day
+     */
+    public Phase getPhase(int row, int col) {
+        return this.grid.get(row + this.padSize).get(col + this.padSize).phase;
+    }
+
+    /**
+     * Sets a usable cell to infectious and records it as an outbreak seed.
+     * @param row - Row among the usable cells
+     * @param col - Column among the usable cells
+     */
+    public void seed(int row, int col) {
+        if (!isSeeded(row, col)) {
+            this.grid.get(row + this.padSize).get(col + this.padSize).setPhase(Phase.INFECTIOUS);
+            this.analytics.addSeed(row + this.padSize, col + this.padSize);
         }
     }
 
@@ -198,6 +259,7 @@ class Model {
      * appropriate concrete class is executed.
      */
     private void performLogic() {
+        this.interventions.compile(this.day + 1);
         this.strategy.doLogic(this.padSize, this.dim, this.effectiveDim, this.grid, this.copyGrid);
     }
 
@@ -217,12 +279,18 @@ class Model {
     /**
      * Traverses the grid counting the number of cells in each phase of the SLIR model.
      * Updates countSusceptible, countLatent, countInfectious, and countRecovered.
+     * Susceptible cells under an active immune intervention are counted as
+     * recovered, since they can no longer be infected.
+     * Cells that left the susceptible phase since the copy was taken are handed to
+     * the spatial analytics during the same traversal.
      */
     private void updateStatistics() {
         // Create an array that is the same size as the enumerated list in Phase
         // For this model, the counts array is 4 elements, each corresponding to a phase
         // in the SLIR model
         int [] counts= new int[Phase.values().length];
+        long[] immune = this.interventions.getImmune();
+        long[] isolated = this.interventions.getIsolated();
 
         for(int i = this.padSize; i < this.effectiveDim - this.padSize; i++) {
             for(int j = this.padSize; j < this.effectiveDim - this.padSize; j++) {
@@ -237,7 +305,21 @@ class Model {
                 // incrementing counts[0] by one. Thank you, enum class.
                 // Even better, the order of the elements in the Phase enum class can change
                 // and it will not affect the logic in the command below.
-                counts[this.grid.get(i).get(j).phase.ordinal()]++;
+                // An immune susceptible cell is moved to the recovered counter the same
+                // way: the flag below is 1 only when the ordinal is the susceptible one
+                // (the XOR is then 0, so subtracting 1 sets the sign bit) and the
+                // cell's immune bit is set, like the strategies mask localInfectious.
+                Phase phase = this.grid.get(i).get(j).phase;
+                int ordinal = phase.ordinal();
+                int immunized = (1 - Intervention.open(immune, i * this.effectiveDim + j))
+                    & (((ordinal ^ Phase.SUSCEPTIBLE.ordinal()) - 1) >>> 31);
+                counts[ordinal + immunized * (Phase.RECOVERED.ordinal() - ordinal)]++;
+
+                // Only newly infected cells touch the union-find
+                if (phase != Phase.SUSCEPTIBLE 
+                    && this.copyGrid.get(i).get(j).phase == Phase.SUSCEPTIBLE) {
+                    this.analytics.addInfection(i, j, this.copyGrid, isolated);
+                }
             }
         }
 
@@ -250,13 +332,18 @@ class Model {
     
     /** 
      * The writeStatistics method is used to write the number of cells in
-     * each phase of the SLIR model to a file.
+     * each phase of the SLIR model to a file, followed by the spatial statistics:
+     * the number of infected clusters, the size of the largest cluster, and the
+     * radius of the outbreak front.
      * @param writer
      * @throws IOException
      */
-    private void writeStatistics(BufferedWriter writer) throws IOException {
+    private void writeStatistics(Writer writer) throws IOException {
         writer.append(this.countSusceptible + ", " + this.countLatent + ", " + 
-                      this.countInfectious + ", " + this.countRecovered + '\n');
+                      this.countInfectious + ", " + this.countRecovered + ", " +
+                      this.analytics.getClusterCount() + ", " + 
+                      this.analytics.getLargestCluster() + ", " +
+                      String.format(Locale.US, "%.2f", this.analytics.getFrontRadius()) + '\n');
     }
 
     
@@ -326,6 +413,31 @@ class Model {
         performLogic();
         // update statistics
         updateStatistics();
+        this.day++;
+    }
+
+    /**
+     * Replaces the intervention schedule. The grid is left as it is, so this can
+     * be called between days; the new masks apply from the next simulated day.
+     * Today's counts are taken again so cells immunized today are counted as
+     * recovered right away.
+     * @param interventions - A schedule built for this model's effectiveDim
+     */
+    public void setInterventions(InterventionSchedule interventions) {
+        this.interventions = interventions;
+        this.strategy.setInterventions(interventions);
+        this.interventions.compile(this.day);
+        updateStatistics();
+    }
+
+    /**
+     * Loads an intervention schedule file and applies it to this model.
+     * See InterventionSchedule for the file format.
+     * @param path - Path to the schedule file
+     * @throws IOException
+     */
+    public void loadInterventions(String path) throws IOException {
+        setInterventions(InterventionSchedule.load(path, this.padSize, this.effectiveDim));
     }
 
     
@@ -340,14 +452,25 @@ class Model {
     public void defaultRun() throws IOException {
         // Create a buffered writer to write statistics to
         BufferedWriter writer = new BufferedWriter(new FileWriter("output.csv"));
+        run(writer);
+        writer.close();
+    }
+
+    
+    /** 
+     * run() wraps the simulateDay() method, writing each day's statistics to
+     * the given writer until no latent or infectious cells remain. The writer
+     * is not closed.
+     * @param writer
+     * @throws IOException
+     */
+    public void run(Writer writer) throws IOException {
         writeStatistics(writer);
 
         while(this.countLatent > 0 || this.countInfectious > 0) {
             simulateDay();
             writeStatistics(writer);
         }
-
-        writer.close();
     }
 
     
@@ -385,9 +508,12 @@ class Model {
     public int getPopulation() { return this.pop; }
     public int getDaysLatent() { return this.daysLatent; }
     public int getDaysInfectious() { return this.daysInfectious; }
+    public long getSeed() { return this.seed; }
+    public int getDay() { return this.day; }
     public int getCountSusceptible() { return this.countSusceptible; }
     public int getCountLatent() { return this.countLatent; }
     public int getCountInfectious() { return this.countInfectious; }
     public int getCountRecovered() { return this.countRecovered; }
+    public SpatialAnalytics getAnalytics() { return this.analytics; }
 }
 
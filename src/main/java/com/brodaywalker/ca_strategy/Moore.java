@@ -9,19 +9,30 @@ import java.util.Random;
  * performing logic to update a cell's phase. 
  */
 class Moore implements Strategy {
+    // The 8 cells surrounding the center of a 3x3 submatrix
+    private static final int[][] NEIGHBORHOOD = {
+        {-1, -1}, {-1, 0}, {-1, 1},
+        { 0, -1},          { 0, 1},
+        { 1, -1}, { 1, 0}, { 1, 1}
+    };
+
     private int daysLatent, daysInfectious;
     private double chanceInfected;
+    private Random rand;
+    private InterventionSchedule interventions;
 
     Moore() {
         this.daysLatent = 1;
         this.daysInfectious = 1;
         this.chanceInfected = 0.3;
+        this.rand = new Random();
     }
 
     Moore(int daysLatent, int daysInfectious, double chanceInfected) {
         this.daysLatent = daysLatent;
         this.daysInfectious = daysInfectious;
         this.chanceInfected = chanceInfected;
+        this.rand = new Random();
     }
 
     /** 
@@ -34,6 +45,10 @@ class Moore implements Strategy {
     public void doLogic(int padSize, int dim, int effectiveDim, 
         List<List<Model.Cell>> grid, List<List<Model.Cell>> copyGrid) {
         
+        // Today's intervention masks, one bit per cell
+        long[] shielded = this.interventions.getShielded();
+        long[] isolated = this.interventions.getIsolated();
+
         // Traverse the copyGrid
         // The copyGrid is not changed during the traversal. All changes
         // are made to the original grid. 
@@ -46,7 +61,6 @@ class Moore implements Strategy {
                 // and roll random floating point numbers, potentially changing
                 // to the latent phase if the roll succeeds
                 if (currentPhase == Phase.SUSCEPTIBLE) {
-                    Random rand = new Random();
                     double random;
                     int localInfectious = 0;
 
@@ -55,17 +69,23 @@ class Moore implements Strategy {
                     for(int x = 0; x < 3; x++) {
                         for(int y = 0; y < 3; y++) {
                             if(copyGrid.get(i + x - padSize).get(j + y - padSize).phase == Phase.INFECTIOUS) {
-                                localInfectious++;
+                                // Isolated cells do not count as infectious neighbors
+                                localInfectious += Intervention.open(isolated, 
+                                    (i + x - padSize) * effectiveDim + j + y - padSize);
                             }
                         }
                     }
 
+                    // A shielded cell ignores every infectious neighbor. Masking the
+                    // count keeps interventions from adding branches to this loop.
+                    localInfectious &= -Intervention.open(shielded, i * effectiveDim + j);
+
                     // Roll countInfectious random numbers, comparing to the chanceInfected
                     // variable, which is a double representing the likelihood a cell
                     // will contract the disease and become latent. If chanceInfected is 0.3,
                     // there is a 30% chance of turning. 
                     for(int z = 0; z < localInfectious; z++) {
-                        random = rand.nextDouble();
+                        random = this.rand.nextDouble();
 
                         if(random < this.chanceInfected) {
                             // Change the cell to become latent
@@ -106,4 +126,7 @@ class Moore implements Strategy {
     public void setDaysLatent(int days) { this.daysLatent = days; }
     public void setDaysInfectious(int days) { this.daysInfectious = days; }
     public void setChanceInfected(double chance) { this.chanceInfected = chance; }
+    public void setRandom(Random rand) { this.rand = rand; }
+    public void setInterventions(InterventionSchedule interventions) { this.interventions = interventions; }
+    public int[][] getNeighborhood() { return NEIGHBORHOOD; }
 }
\ No newline at end of file
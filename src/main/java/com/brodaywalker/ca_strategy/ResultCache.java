@@ -0,0 +1,163 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * ResultCache holds the per-day output of completed model runs, keyed by the
+ * parameters and seed that produced them. Entries are kept in least recently used
+ * order and the oldest are evicted once the total number of characters held
+ * exceeds the limit.
+ * </p>
+ *
+ * <p>
+ * If a spill directory is given, evicted results are written there instead of
+ * being thrown away, and a later miss in memory checks the directory before the
+ * run is repeated.
+ * </p>
+ */
+class ResultCache {
+    private long maxChars, currentChars, hits, misses;
+    private File spillDir;
+    // accessOrder = true keeps the least recently used entry first
+    private LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true);
+
+    /**
+     * @param maxChars - Upper bound on the characters of output held in memory
+     * @param spillDir - Directory for evicted results, or null to discard them
+     */
+    ResultCache(long maxChars, String spillDir) {
+        this.maxChars = maxChars;
+
+        if (spillDir != null) {
+            this.spillDir = new File(spillDir);
+            this.spillDir.mkdirs();
+        }
+    }
+
+    /**
+     * Looks up a result in memory, then on disk. A result found on disk is
+     * brought back into memory. Only hits are counted here; the caller decides
+     * whether a miss really led to a new run and reports it with recordMiss().
+     * @param key
+     * @return String - The cached output, or null on a miss
+     */
+    public synchronized String get(String key) {
+        String result = this.entries.get(key);
+
+        if (result == null && this.spillDir != null) {
+            result = readSpill(key);
+
+            if (result != null) {
+                put(key, result);
+            }
+        }
+
+        if (result != null) {
+            this.hits++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Counts a request that was answered without a run of its own, such as one
+     * that waited on an identical run already in progress.
+     */
+    public synchronized void recordHit() {
+        this.hits++;
+    }
+
+    /**
+     * Counts a request that had to start a new run.
+     */
+    public synchronized void recordMiss() {
+        this.misses++;
+    }
+
+    /**
+     * Adds a result, evicting the least recently used entries until the cache
+     * fits within its limit again. A result larger than the limit is only spilled.
+     * @param key
+     * @param result
+     */
+    public synchronized void put(String key, String result) {
+        String previous = this.entries.remove(key);
+
+        if (previous != null) {
+            this.currentChars -= previous.length();
+        }
+
+        // Holding it would evict everything else and then itself
+        if (result.length() > this.maxChars) {
+            writeSpill(key, result);
+            return;
+        }
+
+        this.entries.put(key, result);
+        this.currentChars += result.length();
+
+        Iterator<Map.Entry<String, String>> it = this.entries.entrySet().iterator();
+        while (this.currentChars > this.maxChars && it.hasNext()) {
+            Map.Entry<String, String> eldest = it.next();
+
+            writeSpill(eldest.getKey(), eldest.getValue());
+            this.currentChars -= eldest.getValue().length();
+            it.remove();
+        }
+    }
+
+    private File spillFile(String key) {
+        // Keys are made of parameter names and numbers, but keep the file name safe anyway
+        return new File(this.spillDir, key.replaceAll("[^A-Za-z0-9._-]", "_") + ".csv");
+    }
+
+    private void writeSpill(String key, String result) {
+        if (this.spillDir == null) {
+            return;
+        }
+
+        try {
+            Files.write(spillFile(key).toPath(), result.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException ioe) {
+            // A failed spill only costs a rerun later
+            ioe.printStackTrace();
+        }
+    }
+
+    private String readSpill(String key) {
+        File file = spillFile(key);
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+            return null;
+        }
+    }
+
+    public synchronized int size() { return this.entries.size(); }
+    public synchronized long getChars() { return this.currentChars; }
+    public synchronized long getHits() { return this.hits; }
+    public synchronized long getMisses() { return this.misses; }
+
+    /**
+     * @return double - Fraction of lookups answered from the cache, or 0 before any lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = this.hits + this.misses;
+        return lookups == 0 ? 0.0 : (double)this.hits / lookups;
+    }
+}
@@ -0,0 +1,303 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <p>
+ * Seeding chooses which cells start out infectious. Every pattern chooses its
+ * cells in time proportional to the number it seeds and never retries a cell
+ * that is already taken. The target still marks seeded cells in a bitplane of
+ * one bit per cell, and the exact model holds an object per cell, so only the
+ * mean-field model keeps its setup proportional to the seeds plus its blocks.
+ * </p>
+ *
+ * <p>
+ * Patterns are written as short specs, which is how the menu and the service
+ * accept them:
+ * </p>
+ * <pre>
+ * random        k distinct cells chosen uniformly (Floyd's algorithm)
+ * hotspots:N    k cells split among N random centers, each filled outward ring by ring
+ * row:R         k cells in reading order starting at row R, wrapping to the top
+ * column:C      k cells column by column starting at column C, wrapping to the left
+ * file:PATH     the cells listed in the file as "row column" pairs; k is ignored
+ * </pre>
+ * <p>
+ * Rows and columns are 0-based positions among the usable cells (the border is
+ * not counted).
+ * </p>
+ */
+class Seeding {
+
+    /**
+     * Anything with a square grid of usable cells that can be seeded.
+     */
+    interface Target {
+        public int getDim();
+
+        public boolean isSeeded(int row, int col);
+
+        public void seed(int row, int col);
+    }
+
+    enum Pattern { RANDOM, HOTSPOTS, ROW_FRONT, COLUMN_FRONT, CELLS }
+
+    private Pattern pattern;
+    private int parameter;
+    private int[][] cells;
+
+    private Seeding(Pattern pattern, int parameter, int[][] cells) {
+        this.pattern = pattern;
+        this.parameter = parameter;
+        this.cells = cells;
+    }
+
+    public static Seeding random() { return new Seeding(Pattern.RANDOM, 0, null); }
+    public static Seeding hotspots(int count) { return new Seeding(Pattern.HOTSPOTS, Math.max(count, 1), null); }
+    public static Seeding rowFront(int row) { return new Seeding(Pattern.ROW_FRONT, row, null); }
+    public static Seeding columnFront(int col) { return new Seeding(Pattern.COLUMN_FRONT, col, null); }
+
+    /**
+     * @param cells - {row, column} pairs to seed; k is ignored and cells off the grid are skipped
+     * @return Seeding - A pattern that seeds exactly the given cells
+     */
+    public static Seeding cells(int[][] cells) { return new Seeding(Pattern.CELLS, 0, cells); }
+
+    /**
+     * Reads a list of cells, one "row column" pair per line. Blank lines and
+     * lines starting with # are ignored.
+     * @param path - Path to the coordinate file
+     * @return Seeding - A pattern that seeds exactly the listed cells
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static Seeding fromFile(String path) throws IOException {
+        List<int[]> cells = new ArrayList<int[]>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        String line;
+        int lineNumber = 0;
+
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("[\\s,]+");
+                try {
+                    cells.add(new int[] {Integer.parseInt(fields[0]), Integer.parseInt(fields[1])});
+                }
+                catch (RuntimeException re) {
+                    throw new IOException("line " + lineNumber + ": expected 'row column'", re);
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        return cells(cells.toArray(new int[cells.size()][]));
+    }
+
+    /**
+     * Parses a spec such as "random", "hotspots:4", "row:0", "column:0", or
+     * "file:seeds.txt".
+     * @param spec
+     * @return Seeding - The described pattern
+     * @throws IOException if a coordinate file cannot be read
+     */
+    public static Seeding parse(String spec) throws IOException {
+        int split = spec.indexOf(':');
+        String name = (split < 0 ? spec : spec.substring(0, split)).toLowerCase();
+        String argument = split < 0 ? "" : spec.substring(split + 1);
+
+        if (name.equals("random")) {
+            return random();
+        }
+        else if (name.equals("hotspots")) {
+            return hotspots(argument.isEmpty() ? 1 : Integer.parseInt(argument));
+        }
+        else if (name.equals("row")) {
+            return rowFront(argument.isEmpty() ? 0 : Integer.parseInt(argument));
+        }
+        else if (name.equals("column")) {
+            return columnFront(argument.isEmpty() ? 0 : Integer.parseInt(argument));
+        }
+        else if (name.equals("file")) {
+            return fromFile(argument);
+        }
+
+        throw new IllegalArgumentException("Unknown seeding pattern: " + spec);
+    }
+
+    /**
+     * Describes the pattern by what it seeds rather than how it was given, so two
+     * equal patterns have equal keys. Cell lists are keyed by a SHA-256 digest of
+     * the cells, so a coordinate file that is edited gets a new key.
+     * @return String - A key such as "hotspots:4" or "cells:" followed by the digest
+     */
+    public String key() {
+        switch (this.pattern) {
+            case HOTSPOTS:
+                return "hotspots:" + this.parameter;
+            case ROW_FRONT:
+                return "row:" + this.parameter;
+            case COLUMN_FRONT:
+                return "column:" + this.parameter;
+            case CELLS:
+                try {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    for (int[] cell : this.cells) {
+                        digest.update((cell[0] + " " + cell[1] + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return "cells:" + String.format("%064x", new BigInteger(1, digest.digest()));
+                }
+                catch (NoSuchAlgorithmException nsae) {
+                    // Every Java platform is required to provide SHA-256
+                    throw new IllegalStateException(nsae);
+                }
+            default:
+                return "random";
+        }
+    }
+
+    /**
+     * Seeds k cells of an unseeded target. Asking for more cells than the grid
+     * holds seeds a single cell instead.
+     * @param target - The grid to seed
+     * @param k - Number of cells to seed
+     * @param rand - The model's random number generator
+     */
+    public void apply(Target target, int k, Random rand) {
+        int dim = target.getDim();
+        long cellCount = (long)dim * dim;
+
+        if (cellCount == 0) {
+            return;
+        }
+        if (k > cellCount || k < 0) {
+            k = 1;
+        }
+
+        // Front patterns may start from any row or column, wrapping around the grid
+        int start = (this.parameter % dim + dim) % dim;
+
+        switch (this.pattern) {
+            case RANDOM:
+                sampleDistinct(target, k, rand);
+                break;
+            case HOTSPOTS:
+                seedHotspots(target, k, rand);
+                break;
+            case ROW_FRONT:
+                for (int n = 0; n < k; n++) {
+                    long index = (long)start * dim + n;
+                    target.seed((int)(index / dim % dim), (int)(index % dim));
+                }
+                break;
+            case COLUMN_FRONT:
+                for (int n = 0; n < k; n++) {
+                    long index = (long)start * dim + n;
+                    target.seed((int)(index % dim), (int)(index / dim % dim));
+                }
+                break;
+            case CELLS:
+                for (int[] cell : this.cells) {
+                    if (cell[0] >= 0 && cell[0] < dim && cell[1] >= 0 && cell[1] < dim) {
+                        target.seed(cell[0], cell[1]);
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Floyd's algorithm: for j from n - k to n - 1, pick t in [0, j]; if t was
+     * already picked, take j instead, which cannot have been picked yet. This
+     * yields k distinct cells uniformly in k draws. The target's own grid records
+     * what has been picked, so no extra set is needed.
+     */
+    private static void sampleDistinct(Target target, int k, Random rand) {
+        int dim = target.getDim();
+        int n = dim * dim;
+
+        for (int j = n - k; j < n; j++) {
+            int t = rand.nextInt(j + 1);
+
+            if (target.isSeeded(t / dim, t % dim)) {
+                t = j;
+            }
+            target.seed(t / dim, t % dim);
+        }
+    }
+
+    /**
+     * Splits k among the hotspot centers, then grows each hotspot from its center
+     * one square ring at a time until it has its share. Cells already taken by a
+     * neighboring hotspot are skipped, so every hotspot gets its full share.
+     */
+    private void seedHotspots(Target target, int k, Random rand) {
+        int dim = target.getDim();
+        int count = (int)Math.min(this.parameter, (long)dim * dim);
+        int[] centers = new int[count];
+
+        // The centers are themselves a distinct random sample, recorded here
+        // rather than on the grid so they can be filled one by one
+        Set<Integer> taken = new HashSet<Integer>();
+        for (int j = dim * dim - count, c = 0; j < dim * dim; j++, c++) {
+            int t = rand.nextInt(j + 1);
+            centers[c] = taken.add(t) ? t : j;
+            taken.add(centers[c]);
+        }
+
+        for (int c = 0; c < count; c++) {
+            int quota = k / count + (c < k % count ? 1 : 0);
+            int row = centers[c] / dim, col = centers[c] % dim;
+
+            for (int ring = 0; quota > 0 && ring < dim; ring++) {
+                quota = fillRing(target, row, col, ring, quota);
+            }
+        }
+    }
+
+    /**
+     * Seeds up to quota unseeded cells on the square ring at the given distance
+     * from (row, col).
+     * @return int - The quota left after this ring
+     */
+    private static int fillRing(Target target, int row, int col, int ring, int quota) {
+        int dim = target.getDim();
+
+        for (int i = row - ring; i <= row + ring && quota > 0; i++) {
+            if (i < 0 || i >= dim) {
+                continue;
+            }
+
+            // Rows on the ring's top and bottom edge are walked fully;
+            // the rows between only touch the left and right edge
+            int step = (i == row - ring || i == row + ring) ? 1 : Math.max(2 * ring, 1);
+
+            for (int j = col - ring; j <= col + ring && quota > 0; j += step) {
+                if (j >= 0 && j < dim && !target.isSeeded(i, j)) {
+                    target.seed(i, j);
+                    quota--;
+                }
+            }
+        }
+
+        return quota;
+    }
+}
@@ -0,0 +1,14 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Each engine that can run an SLIR scenario implements Simulation, so the
+ * exact cellular Model and faster approximations can be swapped per run.
+ */
+interface Simulation {
+    public void run(Writer writer) throws IOException;
+
+    public void defaultRun() throws IOException;
+}
@@ -0,0 +1,296 @@
+package com.brodaywalker.ca_strategy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * SimulationService runs models for other programs over plain HTTP on localhost,
+ * so repeated requests do not each pay for a fresh JVM. Runs are queued onto a
+ * bounded pool of worker threads and their per-day output is kept in a
+ * ResultCache. A request that names a seed is deterministic, so asking for the
+ * same parameters and seed again is answered straight from the cache.
+ * </p>
+ *
+ * <p>
+ * Endpoints:
+ * </p>
+ * <pre>
+ * GET /run?pop=2500&amp;initialInfectious=1&amp;daysLatent=1&amp;daysInfectious=1
+ *         &amp;chanceToInfect=0.3&amp;strategy=1&amp;seed=42
+ *     Returns the same lines Model.defaultRun() writes to output.csv.
+ *     Parameters that are left out take the defaults of Model().
+ *     Adding &amp;engine=meanfield&amp;blockSize=10 runs the MeanFieldModel instead.
+ *     Adding &amp;seeding=hotspots:4 places the initial cells with that Seeding spec.
+ * GET /stats
+ *     Returns queue depth and cache statistics, one "name=value" per line.
+ * </pre>
+ */
+class SimulationService {
+    public static final int DEFAULT_PORT = 8080;
+
+    // Largest grid a request may ask for; the exact model holds two copies of it
+    private static final int MAX_POP = 1000000;
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long CACHE_CHARS = 64L * 1024 * 1024;
+
+    private HttpServer server;
+    private ThreadPoolExecutor workers;
+    private ResultCache cache;
+    // Runs that are queued or in progress, so identical requests share one run
+    private ConcurrentHashMap<String, FutureTask<String>> pending = new ConcurrentHashMap<String, FutureTask<String>>();
+
+    /**
+     * @param port - Port to listen on; only the loopback address is bound
+     * @param spillDir - Directory for results evicted from memory, or null
+     * @throws IOException
+     */
+    SimulationService(int port, String spillDir) throws IOException {
+        this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY));
+        this.cache = new ResultCache(CACHE_CHARS, spillDir);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/run", new RunHandler());
+        this.server.createContext("/stats", new StatsHandler());
+        // Connections are handled on their own threads and mostly wait on the
+        // worker pool, so they are cheap to keep separate from it
+        this.server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start() {
+        this.server.start();
+        System.out.println("Simulation service listening on http://127.0.0.1:"
+            + this.server.getAddress().getPort() + "/run");
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.workers.shutdown();
+    }
+
+    /**
+     * Returns the output for the given parameters, from the cache when the run is
+     * deterministic and has been done before.
+     * @param params - Query parameters of the request
+     * @return String - Per-day output of the run
+     * @throws Exception
+     */
+    String run(Map<String, String> params) throws Exception {
+        final int pop = intParam(params, "pop", 2500);
+        final int initialInfectious = intParam(params, "initialInfectious", 1);
+        final int daysLatent = intParam(params, "daysLatent", 1);
+        final int daysInfectious = intParam(params, "daysInfectious", 1);
+        final double chanceToInfect = params.containsKey("chanceToInfect")
+            ? Double.parseDouble(params.get("chanceToInfect")) : 0.3;
+        final int selectedStrategy = intParam(params, "strategy", 1);
+        final boolean seeded = params.containsKey("seed");
+        final long seed = seeded ? Long.parseLong(params.get("seed")) : new Random().nextLong();
+        final boolean meanField = "meanfield".equals(params.get("engine"));
+        final int blockSize = meanField ? intParam(params, "blockSize", 10) : 0;
+        final Seeding seeding = parseSeeding(params.containsKey("seeding") ? params.get("seeding") : "random");
+
+        if (pop < 1 || pop > MAX_POP) {
+            throw new IllegalArgumentException("pop must be between 1 and " + MAX_POP);
+        }
+        if (daysLatent < 0 || daysInfectious < 0) {
+            throw new IllegalArgumentException("daysLatent and daysInfectious must not be negative");
+        }
+        if (meanField && blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+        if (Main.createStrategy(selectedStrategy) == null) {
+            throw new IllegalArgumentException("Unknown strategy: " + selectedStrategy);
+        }
+
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            public String call() throws IOException {
+                StringWriter writer = new StringWriter();
+                Simulation model;
+
+                if (meanField) {
+                    model = new MeanFieldModel(pop, initialInfectious, daysLatent, daysInfectious,
+                        chanceToInfect, Main.createStrategy(selectedStrategy), blockSize, seed, seeding);
+                }
+                else {
+                    model = new Model(pop, initialInfectious, daysLatent, daysInfectious,
+                        chanceToInfect, true, Main.createStrategy(selectedStrategy), seed, seeding);
+                }
+                model.run(writer);
+                return writer.toString();
+            }
+        });
+
+        // Without a seed the run is not repeatable, so it is neither cached nor shared
+        if (!seeded) {
+            submit(task);
+            return task.get();
+        }
+
+        // MeanFieldModel clamps the block size to the grid width, so key on the
+        // size it will actually use
+        String key = String.format(Locale.US, "engine=%s,pop=%d,init=%d,latent=%d,infectious=%d,chance=%s,strategy=%d,seed=%d,block=%d,seeding=%s",
+            meanField ? "meanfield" : "exact", pop, initialInfectious, daysLatent, daysInfectious,
+            Double.toString(chanceToInfect), selectedStrategy, seed,
+            meanField ? Math.min(blockSize, (int)Math.sqrt(pop)) : 0, seeding.key());
+
+        String cached = this.cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // A request that finds an identical run in progress shares its result,
+        // which counts as a hit since no new run is started for it
+        FutureTask<String> existing = this.pending.putIfAbsent(key, task);
+        if (existing != null) {
+            String result = existing.get();
+            this.cache.recordHit();
+            return result;
+        }
+
+        try {
+            // The previous run for this key may have finished between the first
+            // lookup and claiming the key, so look again before running
+            cached = this.cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            this.cache.recordMiss();
+            submit(task);
+            String result = task.get();
+            this.cache.put(key, result);
+            return result;
+        }
+        finally {
+            this.pending.remove(key);
+        }
+    }
+
+    /**
+     * Parses a seeding spec. A coordinate file is read once here, and the run uses
+     * the parsed cells, so the cache key and the run always agree on its content.
+     * A file that cannot be read or parsed is reported the same way whether or
+     * not it exists, without its path, so requests cannot probe the filesystem.
+     */
+    private static Seeding parseSeeding(String spec) {
+        try {
+            return Seeding.parse(spec);
+        }
+        catch (IOException ioe) {
+            throw new IllegalArgumentException("Seeding file could not be read as 'row column' pairs");
+        }
+    }
+
+    /**
+     * Queues a run, cancelling it if the queue is full so that requests sharing
+     * the run are not left waiting on it.
+     */
+    private void submit(FutureTask<String> task) {
+        try {
+            this.workers.execute(task);
+        }
+        catch (RejectedExecutionException ree) {
+            task.cancel(false);
+            throw ree;
+        }
+    }
+
+    /**
+     * @return String - Queue depth and cache statistics, one "name=value" per line
+     */
+    String stats() {
+        return "queueDepth=" + this.workers.getQueue().size() + '\n'
+            + "activeRuns=" + this.workers.getActiveCount() + '\n'
+            + "cacheEntries=" + this.cache.size() + '\n'
+            + "cacheChars=" + this.cache.getChars() + '\n'
+            + "cacheHits=" + this.cache.getHits() + '\n'
+            + "cacheMisses=" + this.cache.getMisses() + '\n'
+            + "cacheHitRate=" + String.format(Locale.US, "%.4f", this.cache.getHitRate()) + '\n';
+    }
+
+    private class RunHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                respond(exchange, 200, run(parseQuery(exchange.getRequestURI().getRawQuery())));
+            }
+            catch (RejectedExecutionException | CancellationException e) {
+                // A shared run is cancelled only when the queue rejected it
+                respond(exchange, 503, "Run queue is full, try again later\n");
+            }
+            catch (IllegalArgumentException iae) {
+                // NumberFormatException is caught here as well
+                respond(exchange, 400, iae.getMessage() + '\n');
+            }
+            catch (ExecutionException ee) {
+                respond(exchange, 500, ee.getCause() + "\n");
+            }
+            catch (Exception e) {
+                respond(exchange, 500, e + "\n");
+            }
+        }
+    }
+
+    private class StatsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            respond(exchange, 200, stats());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+
+        if (query == null) {
+            return params;
+        }
+
+        for (String pair : query.split("&")) {
+            int split = pair.indexOf('=');
+
+            if (split > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, split), "UTF-8"),
+                           URLDecoder.decode(pair.substring(split + 1), "UTF-8"));
+            }
+        }
+
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        return params.containsKey(name) ? Integer.parseInt(params.get(name)) : defaultValue;
+    }
+}
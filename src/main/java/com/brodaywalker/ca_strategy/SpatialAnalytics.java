@@ -0,0 +1,171 @@
+package com.brodaywalker.ca_strategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * SpatialAnalytics tracks the spatial shape of an outbreak as it grows: how many
+ * separate infected clusters exist, how large the biggest one is, and how far the
+ * front has travelled from the initial seeds.
+ * </p>
+ *
+ * <p>
+ * A cell joins the outbreak once it leaves the susceptible phase and never leaves it
+ * again (latent, infectious, and recovered cells all count), so clusters only ever
+ * grow or merge. That makes a union-find over grid indices a good fit: the Model
+ * reports each newly infected cell once, the cell is unioned with the neighboring
+ * cells already in the outbreak, and no flood fill of the whole grid is needed.
+ * The work done each day is proportional to the number of new infections.
+ * </p>
+ */
+class SpatialAnalytics {
+    private static final int NOT_INFECTED = -1;
+
+    private int effectiveDim, clusterCount, largestCluster, maxFrontSquared;
+    private int[][] neighborhood;
+    // Union-find forest; parent[index] is NOT_INFECTED for cells outside the outbreak
+    private int[] parent, size;
+    // The grid index of the seed each infected cell descends from
+    private int[] origin;
+
+    /**
+     * @param effectiveDim - The dimension of the grid including the border
+     * @param neighborhood - The {row, column} neighbor offsets used to connect cells
+     */
+    SpatialAnalytics(int effectiveDim, int[][] neighborhood) {
+        int cells = effectiveDim * effectiveDim;
+
+        this.effectiveDim = effectiveDim;
+        this.neighborhood = neighborhood;
+        this.parent = new int[cells];
+        this.size = new int[cells];
+        this.origin = new int[cells];
+
+        Arrays.fill(this.parent, NOT_INFECTED);
+    }
+
+    /**
+     * Adds an initially infectious cell. A seed is its own origin, so it sits at a
+     * front distance of zero.
+     * @param i - Row of the seed in the grid
+     * @param j - Column of the seed in the grid
+     */
+    public void addSeed(int i, int j) {
+        int index = i * this.effectiveDim + j;
+
+        if (this.parent[index] == NOT_INFECTED) {
+            this.origin[index] = index;
+            join(i, j, index);
+        }
+    }
+
+    /**
+     * Adds a cell that left the susceptible phase today. The cell inherits the origin
+     * of whichever infectious neighbor (in the previous day's copyGrid) is closest to
+     * its own seed, and the front distance is updated from that seed. Isolated
+     * neighbors cannot transmit, so they are never chosen as the infector.
+     * @param i - Row of the cell in the grid
+     * @param j - Column of the cell in the grid
+     * @param copyGrid - The previous day's grid
+     * @param isolated - Plane of cells that cannot infect others, indexed like the grid
+     */
+    public void addInfection(int i, int j, List<List<Model.Cell>> copyGrid, long[] isolated) {
+        int index = i * this.effectiveDim + j;
+        int bestOrigin = index, bestDistance = Integer.MAX_VALUE;
+
+        if (this.parent[index] != NOT_INFECTED) {
+            return;
+        }
+
+        // Find the infector; any infectious neighbor could have caused the
+        // infection, so pick the one that keeps the cell nearest to a seed
+        for (int[] offset : this.neighborhood) {
+            int x = i + offset[0], y = j + offset[1];
+
+            if (inBounds(x, y) && copyGrid.get(x).get(y).phase == Phase.INFECTIOUS
+                && Intervention.open(isolated, x * this.effectiveDim + y) == 1) {
+                int candidate = this.origin[x * this.effectiveDim + y];
+                int distance = distanceSquared(index, candidate);
+
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestOrigin = candidate;
+                }
+            }
+        }
+
+        this.origin[index] = bestOrigin;
+        this.maxFrontSquared = Math.max(this.maxFrontSquared, distanceSquared(index, bestOrigin));
+        join(i, j, index);
+    }
+
+    /**
+     * Makes the cell a cluster of one and merges it with every neighboring
+     * cluster already in the outbreak.
+     */
+    private void join(int i, int j, int index) {
+        this.parent[index] = index;
+        this.size[index] = 1;
+        this.clusterCount++;
+        this.largestCluster = Math.max(this.largestCluster, 1);
+
+        for (int[] offset : this.neighborhood) {
+            int x = i + offset[0], y = j + offset[1];
+
+            if (inBounds(x, y) && this.parent[x * this.effectiveDim + y] != NOT_INFECTED) {
+                union(index, x * this.effectiveDim + y);
+            }
+        }
+    }
+
+    /**
+     * Finds the root of a cell's cluster, halving the path along the way.
+     */
+    private int find(int index) {
+        while (this.parent[index] != index) {
+            this.parent[index] = this.parent[this.parent[index]];
+            index = this.parent[index];
+        }
+
+        return index;
+    }
+
+    /**
+     * Merges two clusters by size, keeping the cluster count and the largest
+     * cluster size current.
+     */
+    private void union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+
+        if (rootA == rootB) {
+            return;
+        }
+
+        if (this.size[rootA] < this.size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+
+        this.parent[rootB] = rootA;
+        this.size[rootA] += this.size[rootB];
+        this.clusterCount--;
+        this.largestCluster = Math.max(this.largestCluster, this.size[rootA]);
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < this.effectiveDim && y >= 0 && y < this.effectiveDim;
+    }
+
+    private int distanceSquared(int a, int b) {
+        int rows = a / this.effectiveDim - b / this.effectiveDim;
+        int cols = a % this.effectiveDim - b % this.effectiveDim;
+
+        return rows * rows + cols * cols;
+    }
+
+    public int getClusterCount() { return this.clusterCount; }
+    public int getLargestCluster() { return this.largestCluster; }
+    public double getFrontRadius() { return Math.sqrt(this.maxFrontSquared); }
+}
@@ -1,6 +1,7 @@
 package com.brodaywalker.ca_strategy;
 
 import java.util.List;
+import java.util.Random;
 
 /**
  * Each class performing logic on a Model object's 2D grid must implement
@@ -15,4 +16,15 @@ interface Strategy {
     public void setDaysInfectious(int days);
 
     public void setChanceInfected(double chance);
+
+    public void setRandom(Random rand);
+
+    public void setInterventions(InterventionSchedule interventions);
+
+    /**
+     * Returns the {row, column} offsets of every neighbor this strategy surveys,
+     * not including the cell itself.
+     * @return int[][] - One {row, column} pair per neighbor
+     */
+    public int[][] getNeighborhood();
 }
\ No newline at end of file
@@ -10,25 +10,38 @@ import java.util.Random;
  * above, to the left, to the right, and below the cell being processed.
  */
 class VonNeumann implements Strategy {
+    // The cells directly above, to the left, to the right, and below
+    private static final int[][] NEIGHBORHOOD = {
+        {0, -1}, {-1, 0}, {1, 0}, {0, 1}
+    };
+
     private int daysLatent, daysInfectious;
     private double chanceInfected;
+    private Random rand;
+    private InterventionSchedule interventions;
 
     VonNeumann() {
         this.daysLatent = 1;
         this.daysInfectious = 1;
         this.chanceInfected = 0.3;
+        this.rand = new Random();
     }
 
     VonNeumann(int daysLatent, int daysInfectious, double chanceInfected) {
         this.daysLatent = daysLatent;
         this.daysInfectious = daysInfectious;
         this.chanceInfected = chanceInfected;
+        this.rand = new Random();
     }
 
     // TODO: Split into individual methods for processing each phase. 
     public void doLogic(int padSize, int dim, int effectiveDim, 
         List<List<Model.Cell>> grid, List<List<Model.Cell>> copyGrid) {
 
+        // Today's intervention masks, one bit per cell
+        long[] shielded = this.interventions.getShielded();
+        long[] isolated = this.interventions.getIsolated();
+
         // Traverse the copyGrid
         // The copyGrid is not changed during the traversal. All changes
         // are made to the original grid. 
@@ -41,40 +54,44 @@ class VonNeumann implements Strategy {
                 // and roll random floating point numbers, potentially changing
                 // to the latent phase if the roll succeeds
                 if (currentPhase == Phase.SUSCEPTIBLE) {
-                    Random rand = new Random();
                     double random;
                     int localInfectious = 0;
 
                     // First, count the number of infectious in the neighborhood
                     // surrounding this cell. This cell is the center of a cross (4 neighbors)
                     // There isn't a very clean way to check the cross neighborhood
+                    // Isolated cells do not count as infectious neighbors
 
                     // top cell
                     if(copyGrid.get(i).get(j - 1).phase == Phase.INFECTIOUS) {
-                        localInfectious++;
+                        localInfectious += Intervention.open(isolated, i * effectiveDim + j - 1);
                     }
 
                     // left cell
                     if(copyGrid.get(i - 1).get(j).phase == Phase.INFECTIOUS) {
-                        localInfectious++;
+                        localInfectious += Intervention.open(isolated, (i - 1) * effectiveDim + j);
                     }
 
                     // right cell
                     if(copyGrid.get(i + 1).get(j).phase == Phase.INFECTIOUS) {
-                        localInfectious++;
+                        localInfectious += Intervention.open(isolated, (i + 1) * effectiveDim + j);
                     }
 
                     // bottom cell
                     if(copyGrid.get(i).get(j + 1).phase == Phase.INFECTIOUS) {
-                        localInfectious++;
+                        localInfectious += Intervention.open(isolated, i * effectiveDim + j + 1);
                     }
 
+                    // A shielded cell ignores every infectious neighbor. Masking the
+                    // count keeps interventions from adding branches to this loop.
+                    localInfectious &= -Intervention.open(shielded, i * effectiveDim + j);
+
                     // Roll countInfectious random numbers, comparing to the chanceInfected
                     // variable, which is a double representing the likelihood a cell
                     // will contract the disease and become latent. If chanceInfected is 0.3,
                     // there is a 30% chance of turning. 
                     for(int z = 0; z < localInfectious; z++) {
-                        random = rand.nextDouble();
+                        random = this.rand.nextDouble();
 
                         if(random < this.chanceInfected) {
                             // Change the cell to become latent
@@ -115,4 +132,7 @@ class VonNeumann implements Strategy {
     public void setDaysLatent(int days) { this.daysLatent = days; }
     public void setDaysInfectious(int days) { this.daysInfectious = days; }
     public void setChanceInfected(double chance) { this.chanceInfected = chance; }
+    public void setRandom(Random rand) { this.rand = rand; }
+    public void setInterventions(InterventionSchedule interventions) { this.interventions = interventions; }
+    public int[][] getNeighborhood() { return NEIGHBORHOOD; }
 }
\ No newline at end of file